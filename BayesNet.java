@@ -16,7 +16,7 @@ import java.io.*;
  *  
  ********************************************************************************/
 
-abstract class BayesNet {
+abstract class BayesNet implements Classifier {
     /********************************************************************************
      *  main - Driver class for CBR parsing and testing
      ********************************************************************************/
@@ -56,8 +56,10 @@ abstract class BayesNet {
 	// Train
 	BayesNet1 bn1 = new BayesNet1 (wordX, wordY, ratioXOverY, trainSet, testSet);
 	BayesNet2 bn2 = new BayesNet2 (wordX, wordY, ratioXOverY, trainSet, testSet);
+	HashedBayes bn3 = new HashedBayes (wordX, wordY, trainSet);
 	bn1.runTests (testSet);
 	bn2.runTests (testSet);
+	bn3.runTests (testSet);
 
     }
 
@@ -65,6 +67,12 @@ abstract class BayesNet {
      *  runTests - tests against test set and prints results
      ********************************************************************************/
     public void runTests (List <Example> testSet) {
+	runTests (this, word1, word2, trainSize (), testSet);
+    }
+
+    // Same, for any classifier of @word1 vs. @word2 trained on @trainSize examples
+    static void runTests (Classifier c, String word1, String word2, int trainSize,
+			  List <Example> testSet) {
 	
 	int noCorrect = 0;
 	int noWrong = 0;
@@ -84,7 +92,7 @@ abstract class BayesNet {
 	    // Otherwise, test
 	    noTested++;
 	    String correct = ex.centerWord ();
-	    String estimated = guess (ex);
+	    String estimated = c.guess (ex);
 
 	    // And update stats
 	    if (!correct.equals (estimated)) {
@@ -96,7 +104,7 @@ abstract class BayesNet {
 	}
 
 	// Print results	
-	System.out.println ("  Number of train examples: " + trainSet.size ());
+	System.out.println ("  Number of train examples: " + trainSize);
 	System.out.println ("  Number of test examples: " + noTested);
 	System.out.println ("  Number answered correctly: " + noCorrect);
 	System.out.println ("  Number answered incorrectly: " + noWrong);
@@ -129,45 +137,194 @@ abstract class BayesNet {
     // ratioXoverY (unused)
     double ratio;
 
+    // Nodes with parents, whose factor varies between queries, and the
+    // summed log ratio of the nodes without, which does not
+    private volatile BayesNode [] conditioned;
+    private double prior;
+
+    // Positions read by some node, and the number of each counted tag
+    private int [] used;
+    private Map <String, Integer> tagNumber;
+
+    // Tables installed by setCounts, if counts came from tables
+    private List <CountTable> tables;
+
 
     /********************************************************************************
      *  guess - Returns the best guess for the word to be placed in @query.
      *
-     *  The probability of each possible configuration of the example is calculated
-     *  using the Bayes net.  The higher probability string is returned.
+     *  The likelihood of each possible configuration of the example is compared
+     *  using the Bayes net.  The more likely word is returned.
      *********************************************************************************/
     public String guess (Example query) {
 
-	// Calculate probability using wordX and wordY
-	query.get (7).word = word1;
-	double pX = probability (query);
-	query.get (7).word = word2;
-	double pY = probability (query);
-
 	// Return the more likely candidate
-	if (pX > pY) {
-	    return word1;
-	} else {
-	    return word2;
-	}
+	return logRatio (query) > 0 ? word1 : word2;
+    }
+
+    /********************************************************************************
+     *  margin - (P(word1) - P(word2)) / (P(word1) + P(word2)) for @query,
+     *           i.e. how far the posterior of word1 is from an even split.
+     *********************************************************************************/
+    public double margin (Example query) {
+	return Math.tanh (logRatio (query) / 2);
     }
 
 
     /********************************************************************************
-     *  Returns the full-joint probability of an example
+     *  logRatio - log P(query with word1) - log P(query with word2)
      *
      *  P (query) = product (P (node[i] | parents (node[i])))
+     *
+     *  Every node conditions on the center word, so every factor differs between
+     *  the two words.  Summing the difference of logs keeps wide nets from
+     *  underflowing, and the nodes without parents add the same amount to
+     *  every query, so only nodes with parents are visited here.
+     ********************************************************************************/
+    double logRatio (Example query) {
+	BayesNode [] nodes = conditioned;
+	if (nodes == null)
+	    nodes = prepare ();
+
+	// Number the tags the nodes will read
+	int [] tagAt = new int [query.getWords ().size ()];
+	for (int i = 0; i < used.length; i++) {
+	    Integer t = tagNumber.get (query.get (used [i]).pos);
+	    tagAt [used [i]] = t == null ? 0 : t;
+	}
+
+	double r = prior;
+	for (int i = 0; i < nodes.length; i++)
+	    r += nodes [i].logRatio (tagAt);
+	return r;
+    }
+
+    /********************************************************************************
+     *  prepare - counts the train set if nothing has been counted yet, sums
+     *            the prior over nodes without parents, numbers the tags
+     *            counted, and fills the log ratio table of each node with
+     *            parents over the contexts it counted.
+     ********************************************************************************/
+    private synchronized BayesNode [] prepare () {
+	if (conditioned != null)
+	    return conditioned;
+	if (bnet.get (0).counts == null)
+	    exactCounts ();
+
+	// The contexts each node with parents has counted: a count table's
+	// keys, or else (for sketches) each train example's proposition
+	List <BayesNode> nodes = new ArrayList <BayesNode> ();
+	List <List <PosProposition>> seen = new ArrayList <List <PosProposition>> ();
+	prior = 0;
+	for (int i = 0; i < bnet.size (); i++) {
+	    BayesNode n = bnet.get (i);
+	    if (n.parents.isEmpty ()) {
+		prior += Math.log (n.probability (new PosProposition (word1)))
+		    - Math.log (n.probability (new PosProposition (word2)));
+		continue;
+	    }
+	    List <PosProposition> props = new ArrayList <PosProposition> ();
+	    if (tables != null)
+		for (String key : tables.get (i).keys ())
+		    props.add (PosProposition.parse (key));
+	    else
+		for (Example e : trainSet)
+		    props.add (n.proposition (e));
+	    nodes.add (n);
+	    seen.add (props);
+	}
+
+	// Number every counted tag from 1; 0 is a tag never counted
+	used = positions ();
+	tagNumber = new HashMap <String, Integer> ();
+	for (List <PosProposition> props : seen)
+	    for (PosProposition p : props)
+		for (int pos : used)
+		    if (!p.get (pos).equals (Proposition.FREE) && !tagNumber.containsKey (p.get (pos)))
+			tagNumber.put (p.get (pos), tagNumber.size () + 1);
+
+	for (int i = 0; i < nodes.size (); i++)
+	    nodes.get (i).prepare (word1, word2, seen.get (i), tagNumber);
+
+	conditioned = nodes.toArray (new BayesNode [nodes.size ()]);
+	return conditioned;
+    }
+
+
+    /********************************************************************************
+     *  countTables - one CountTable per node, counted over @examples.  Tables
+     *                from separate shards can be merged node by node.
      ********************************************************************************/
-    private double probability (Example query) {
-	double p = 1;
+    List <CountTable> countTables (List <Example> examples) {
+	List <CountTable> tables = new ArrayList <CountTable> ();
+	for (BayesNode n : bnet)
+	    tables.add (n.count (examples));
+	return tables;
+    }
+
+    /********************************************************************************
+     *  setCounts - installs one CountTable per node
+     ********************************************************************************/
+    void setCounts (List <CountTable> tables) {
+	for (int i = 0; i < bnet.size (); i++)
+	    bnet.get (i).setCounts (tables.get (i));
+	this.tables = tables;
+	conditioned = null;
+    }
+
+    /********************************************************************************
+     *  exactCounts - counts the train set into a CountTable per node
+     ********************************************************************************/
+    void exactCounts () {
+	setCounts (countTables (trainSet));
+    }
+
+    /********************************************************************************
+     *  sketchCounts - counts the train set into a @width x @depth
+     *                 CountMinSketch per node with parents, so memory stays
+     *                 fixed however many distinct propositions there are.
+     *                 Nodes without parents only count center words, so they
+     *                 keep an exact table of a few entries.
+     ********************************************************************************/
+    void sketchCounts (int width, int depth) {
 	for (BayesNode n : bnet) {
-	    try {
-		p *= n.conditionalProbability (query);
-	    } catch (Exception e) {
-		System.exit (1);
+	    if (n.parents.isEmpty ()) {
+		n.setCounts (n.count (trainSet));
+		continue;
 	    }
+	    CountMinSketch s = new CountMinSketch (width, depth);
+	    n.count (trainSet, s);
+	    n.setCounts (s);
 	}
-	return p;
+	tables = null;
+	conditioned = null;
+    }
+
+    /********************************************************************************
+     *  trainSize - number of train examples, which may only be known through
+     *              merged counts
+     ********************************************************************************/
+    int trainSize () {
+	Counts t = bnet.get (0).counts;
+	return t != null ? t.total () : trainSet.size ();
+    }
+
+
+    /********************************************************************************
+     *  positions - every node conditions on the center word and its parents,
+     *              so only parent positions matter.
+     ********************************************************************************/
+    public int [] positions () {
+	List <Integer> used = new ArrayList <Integer> ();
+	for (BayesNode n : bnet)
+	    for (BayesNode p : n.parents)
+		used.add (p.position);
+	return Positions.sorted (used);
+    }
+
+    // Only pos is counted
+    public boolean lexical () {
+	return false;
     }
 }    
 
@@ -195,9 +352,6 @@ class BayesNet1 extends BayesNet {
 	this.trainSet = trainSet;
 	this.testSet = testSet;
 
-	// Pass trainSet to BayesNode class
-	BayesNode.setTrainset (trainSet);
-
 	// Create a node for each word position
 	bnet = new ArrayList <BayesNode> ();
 	for (int i = 0; i < 15; i++) {
@@ -238,9 +392,6 @@ class BayesNet2 extends BayesNet {
 	this.trainSet = trainSet;
 	this.testSet = testSet;
 
-	// Pass trainSet to BayesNode class
-	BayesNode.setTrainset (trainSet);
-
 	// Create a node for each word position
 	bnet = new ArrayList <BayesNode> ();
 	for (int i = 0; i < 15; i++) {
@@ -255,6 +406,3 @@ class BayesNet2 extends BayesNet {
 	bnet.get (8).addParent (bnet.get (9));
     }
 }
-
-
-    
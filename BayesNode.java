@@ -5,8 +5,8 @@
  *   Each node is capable of producing a conditional probability, given
  *   a certain probibalistic proposition.
  *
- *   This is done using a CPT and summing over worlds where the proposition
- *   holds.
+ *   This is done by counting, over the train set, the examples where each
+ *   proposition holds (see Counts).
  *
  ********************************************************************************/
 import java.util.*;
@@ -14,35 +14,32 @@ import java.io.*;
 
 public class BayesNode {
 
-    // Examples for calculating all probabilities
-    static List <Example> trainSet;
-    
     // Parent nodes
     List <BayesNode> parents;
-    
+
     // Position within example sentences
     int position;
-    
-    // Probability map - cache calculated values
-    Map <Proposition, Double> map;
-    
-    
+
+    // Counts over the train set; set before any probability is asked for
+    Counts counts;
+
+    // log P(word1 | parents) - log P(word2 | parents) for each context
+    // counted, in an open-addressed table keyed by the parents' tag numbers
+    // (see prepare).  Slot i holds tags [i * parents .. (i + 1) * parents).
+    private int [] parentPositions;
+    private int [] slotTags;
+    private double [] slotRatios;
+    private int mask;
+
+
     /********************************************************************************
      *  BayesNode
      ********************************************************************************/
     BayesNode (int pos) {
 	position = pos;
 	parents = new ArrayList <BayesNode> ();
-	map = new HashMap <Proposition, Double> ();
     }
-    
-    /********************************************************************************
-     *  setTrainset
-     ********************************************************************************/
-    static void setTrainset (List <Example> t) {
-	trainSet = t;
-    }
-    
+
     /********************************************************************************
      *  addParent
      ********************************************************************************/
@@ -50,14 +47,12 @@ public class BayesNode {
 	parents.add (bn);
     }
 
-    
+
     /********************************************************************************
-     *  conditionalProbability - returns the conditional probability of an
-     *  example as given by this nodes parents in the Baye's net.
-     *
-     *  Calculate P(x[i] | x[i-1],..,x[1]) = P(x[i] | Parents (x[i])) = P(x[i] ^ Parents(x[i]) / Parents(x[i])
+     *  proposition - the proposition this node asks about @query:
+     *                its center word and the pos of each parent
      ********************************************************************************/
-    double conditionalProbability (Example query) {
+    PosProposition proposition (Example query) {
 
 	// Create the proposition: P(centerWord)
 	PosProposition Prop = new PosProposition (query.centerWord ());
@@ -68,41 +63,132 @@ public class BayesNode {
 	    String ppos = query.get (position).pos;
 	    Prop.set (position, ppos);
 	}
-	return probability (Prop);
-    }	
+	return Prop;
+    }
+
 
-    
     /********************************************************************************
-     *  Probability - returns the probability that this node can take on the
-     *                value in proposition e.
+     *  count - counts, over @examples, the propositions this node asks about.
      *
-     *  @query Constrains the possible world states, and we sum over examples
-     *         where the constraint holds.
+     *  An example e is allowed by proposition P exactly when proposition (e)
+     *  has the same key as P, so one pass gives every count probability needs.
      ********************************************************************************/
-	double probability (Proposition query) {
-	    
-	    // Start counts at 1
-	    int count = 1;
-	    
-	    // Check previously calculated first
-	    if (map.containsKey (query)) {
-		return map.get (query);
-	    }
-	    
-	    // For every example
-	    for (Example e : trainSet) {
-		// Check if the statement is valid
-		if (query.allows (e)) {
-		    count++;
-		} 
+    CountTable count (List <Example> examples) {
+	CountTable t = new CountTable ();
+	count (examples, t);
+	return t;
+    }
+
+    // Same, into any kind of Counts
+    void count (List <Example> examples, Counts c) {
+	for (Example e : examples)
+	    c.add (proposition (e).key ());
+    }
+
+    /********************************************************************************
+     *  setCounts - answer probabilities from @c
+     ********************************************************************************/
+    void setCounts (Counts c) {
+	counts = c;
+	slotRatios = null;
+    }
+
+
+    /********************************************************************************
+     *  prepare - fills the log ratio table for the parent tags of each of
+     *            @seen, the contexts counted, given @tagNumber, which
+     *            numbers every counted tag from 1.
+     *
+     *  Any other context was counted for neither word, so its two
+     *  probabilities are equal and its ratio is 0; the table holds no more
+     *  entries than there are counted contexts, however many parents.
+     ********************************************************************************/
+    void prepare (String word1, String word2, Collection <PosProposition> seen,
+		  Map <String, Integer> tagNumber) {
+	int np = parents.size ();
+	parentPositions = new int [np];
+	for (int i = 0; i < np; i++)
+	    parentPositions [i] = parents.get (i).position;
+
+	// At most half full
+	int slots = 2;
+	while (slots < 2 * seen.size () && slots <= Integer.MAX_VALUE / 2 / np)
+	    slots *= 2;
+	if (slots < 2 * seen.size ())
+	    throw new IllegalStateException ("too many contexts for node " + position);
+	mask = slots - 1;
+	slotTags = new int [slots * np];
+	slotRatios = new double [slots];
+
+	int [] tags = new int [np];
+	for (PosProposition p : seen) {
+	    for (int i = 0; i < np; i++)
+		tags [i] = tagNumber.get (p.get (parentPositions [i]));
+	    int s = find (tags);
+	    if (slotTags [s * np] != 0)
+		continue;
+
+	    // New context; both probabilities are at least 1 / |trainSet|
+	    PosProposition p1 = new PosProposition (word1);
+	    PosProposition p2 = new PosProposition (word2);
+	    for (int i = 0; i < np; i++) {
+		slotTags [s * np + i] = tags [i];
+		p1.set (parentPositions [i], p.get (parentPositions [i]));
+		p2.set (parentPositions [i], p.get (parentPositions [i]));
 	    }
-	    
-	    // Store it
-	    double p = (double) count / trainSet.size ();
-	    map.put (query, p);
-	    
-	    return p;
+	    slotRatios [s] = Math.log (probability (p1)) - Math.log (probability (p2));
 	}
+    }
+
+    /********************************************************************************
+     *  logRatio - log P(word1 | parents) - log P(word2 | parents), given the
+     *             tag number at each position of the query
+     ********************************************************************************/
+    double logRatio (int [] tagAt) {
+	int np = parentPositions.length;
+	int [] tags = new int [np];
+	for (int i = 0; i < np; i++) {
+	    tags [i] = tagAt [parentPositions [i]];
+	    if (tags [i] == 0)
+		return 0;
+	}
+	int s = find (tags);
+	return slotTags [s * np] == 0 ? 0 : slotRatios [s];
+    }
+
+    /********************************************************************************
+     *  find - the slot holding @tags, or the empty slot where they belong
+     ********************************************************************************/
+    private int find (int [] tags) {
+	int np = tags.length;
+	int h = 0;
+	for (int i = 0; i < np; i++)
+	    h = h * 31 + tags [i];
+	int s = CountMinSketch.mix (h) & mask;
+	while (slotTags [s * np] != 0 && !matches (s, tags))
+	    s = (s + 1) & mask;
+	return s;
+    }
+
+    // whether slot @s holds @tags
+    private boolean matches (int s, int [] tags) {
+	for (int i = 0; i < tags.length; i++)
+	    if (slotTags [s * tags.length + i] != tags [i])
+		return false;
+	return true;
+    }
+
+
+    /********************************************************************************
+     *  Probability - returns the probability that this node can take on the
+     *                value in proposition e.
+     *
+     *  @query Constrains the possible world states; counts start at 1 so no
+     *         proposition is impossible.
+     ********************************************************************************/
+    double probability (Proposition query) {
+	return (double) (1 + counts.count (query.key ())) / counts.total ();
+    }
 
 
     /********************************************************************************
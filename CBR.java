@@ -13,7 +13,7 @@ import java.io.*;
  *
  ********************************************************************************/
 
-abstract class CBR {
+abstract class CBR implements Classifier {
 
     /********************************************************************************
      *  main - Driver class for CBR parsing and testing
@@ -54,10 +54,12 @@ abstract class CBR {
 	// Train CBRs
 	CBRDist1 CBR1 = new CBRDist1 (trainSet, wordX, wordY);
 	CBRDist2 CBR2 = new CBRDist2 (trainSet, wordX, wordY);
+	CBRDist3 CBR3 = new CBRDist3 (trainSet, wordX, wordY);
 
 	// Test CBRs
 	CBR1.runTests (testSet);
 	CBR2.runTests (testSet);
+	CBR3.runTests (testSet);
     }
     
 
@@ -134,12 +136,21 @@ abstract class CBR {
      *          based on the K nearest neighbors.
      ********************************************************************************/
     public String guess (Example query) {
+	// Return most frequently seen word 
+	return margin (query) > 0 ? word1 : word2;
+    }
+
+    /********************************************************************************
+     *  margin - the K nearest neighbors' vote for word1 less their vote for
+     *           word2, as a fraction of K.
+     ********************************************************************************/
+    public double margin (Example query) {
 	PriorityQueue <Neighbor> pq = new PriorityQueue <Neighbor> ();
-	for (Example ex : trainSet) {
+	int [] scores = scores (query);
+	for (int i = 0; i < scores.length; i++) {
 
 	    // Score this example
-	    int s = score (ex, query);
-	    Neighbor n = new Neighbor (s, ex);
+	    Neighbor n = new Neighbor (scores [i], trainSet.get (i));
 	    
 	    // Add to queue
 	    pq.add (n);
@@ -162,8 +173,42 @@ abstract class CBR {
 		System.exit (1);
 	    }
 	}
-	// Return most frequently seen word 
-	return word1Score > word2Score ? word1 : word2;
+	return K == 0 ? 0 : (double) (word1Score - word2Score) / K;
+    }
+
+    /********************************************************************************
+     *  scores - the score of each train example against @query, in train
+     *           set order
+     ********************************************************************************/
+    protected int [] scores (Example query) {
+	int [] scores = new int [trainSet.size ()];
+	for (int i = 0; i < scores.length; i++)
+	    scores [i] = score (trainSet.get (i), query);
+	return scores;
+    }
+
+    /********************************************************************************
+     *  lexical - only pos is compared, unless a metric says otherwise
+     ********************************************************************************/
+    public boolean lexical () {
+	return false;
+    }
+
+    /********************************************************************************
+     *  weighted - positions with a non-zero weight.  Other positions never
+     *             change a score.
+     ********************************************************************************/
+    protected static int [] weighted (int [] weight) {
+	int n = 0;
+	for (int i = 0; i < weight.length; i++)
+	    if (weight [i] != 0)
+		n++;
+	int [] ret = new int [n];
+	n = 0;
+	for (int i = 0; i < weight.length; i++)
+	    if (weight [i] != 0)
+		ret [n++] = i;
+	return ret;
     }
 
     /********************************************************************************
@@ -199,6 +244,12 @@ class CBRDist1 extends CBR {
     }
 
 
+    // Only weighted positions are compared
+    public int [] positions () {
+	return weighted (weight);
+    }
+
+
     /********************************************************************************
      *  Score - returns a similarity score based on matching POS at a given
      *          position.
@@ -241,6 +292,15 @@ class CBRDist2 extends CBR {
     }
 
 
+    // The alignment may match a query word against any train position
+    public int [] positions () {
+	int [] ret = new int [exampleSize];
+	for (int i = 0; i < exampleSize; i++)
+	    ret [i] = i;
+	return ret;
+    }
+
+
     /********************************************************************************
      *  Score - returns a similarity score based on matching POS at a given
      *          position.
@@ -276,6 +336,80 @@ class CBRDist2 extends CBR {
     }
 }
 
-    
 
+/********************************************************************************
+ *    CBRDist3 - Case-based reasoning metric three.
+ *
+ *    This CBR metric is based on the following:
+ *       1. Position specific POS matching
+ *       2. Position specific stem matching
+ *
+ *    Like CBRDist1, but each position's pos and stem are hashed into a
+ *    SparseVector (see FeatureHasher), and the similarity is the weight
+ *    the two vectors share.  Stems can then tell apart contexts with the
+ *    same pos, as among/between often have, at no more cost per position.
+ *
+********************************************************************************/
+class CBRDist3 extends CBR {
+
+    // Weight assignments for neighboring positions, and for the pos and
+    // stem at each
+    static final int [] weight = {0,0,0,1,1,3,7,0,5,2,1,1,0,0,0}; 
+    static final int posWeight = 2;
+    static final int stemWeight = 1;
+    // The word itself is left out: weighting it gained 2 points on
+    // among/between but lost 2 on accept/except
+    static final int wordWeight = 0;
+
+    // 2^bits hashed features
+    static final int bits = 18;
+
+    // Hashes examples into features
+    private FeatureHasher hasher;
+
+    // Features of each train example, in train set order
+    private SparseVector [] trainFeatures;
+
+    // c'tor
+    public CBRDist3 (List <Example> trainSet, String word1, String word2) {
+	this.trainSet = trainSet;
+	this.word1 = word1;
+	this.word2 = word2;
+	K = trainSet.size () > KMAX * KRATIO ? KMAX : trainSet.size () / KRATIO;
+	hasher = new FeatureHasher (bits, weight, posWeight, stemWeight, wordWeight);
+
+	// Hash the train set once, up front
+	trainFeatures = new SparseVector [trainSet.size ()];
+	for (int i = 0; i < trainFeatures.length; i++)
+	    trainFeatures [i] = hasher.features (trainSet.get (i));
+    }
 
+    // Only weighted positions are compared
+    public int [] positions () {
+	return hasher.positions ();
+    }
+
+    // Stems are compared too
+    public boolean lexical () {
+	return true;
+    }
+
+
+    /********************************************************************************
+     *  scores - hashes @query once and compares it with each train example
+     ********************************************************************************/
+    protected int [] scores (Example query) {
+	SparseVector f = hasher.features (query);
+	int [] scores = new int [trainFeatures.length];
+	for (int i = 0; i < scores.length; i++)
+	    scores [i] = trainFeatures [i].overlap (f);
+	return scores;
+    }
+
+    /********************************************************************************
+     *  Score - returns the feature weight shared by both examples
+     ********************************************************************************/
+    protected int score (Example ex1, Example ex2) {
+	return hasher.features (ex1).overlap (hasher.features (ex2));
+    }
+}
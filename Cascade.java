@@ -0,0 +1,248 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   Cascade
+ *
+ *   This class asks a list of classifiers in turn, cheapest first.  A
+ *   stage's answer is accepted when its margin is at least that stage's
+ *   threshold either way; otherwise the query escalates to the next stage.
+ *   The last stage always answers.
+ *
+ *   Margins are on different scales: a CBR's moves in steps of 2/K, while a
+ *   Bayes net's is usually within a hair of 1 either way.  Each stage
+ *   therefore takes its own threshold.
+ *
+ *   Most queries are easy, so the expensive stages only see the few the
+ *   cheap ones are unsure of.
+ *
+ ********************************************************************************/
+
+class Cascade implements Classifier {
+
+    /********************************************************************************
+     *  main - Driver class for cascade parsing and testing
+     ********************************************************************************/
+    public static void main (String [] args) {
+
+	// Verify that the correct number of command-line arguments were passed in
+	if(args.length < 5) {
+	    System.err.println("usage: java Cascade wordX wordY fractionXoverY fileOfTrainingCases fileOfTestPhrases [stage:threshold... lastStage]");
+	    System.exit(1);
+	}
+
+	// Initialize the input variables
+	String wordX = args[0];
+	String wordY = args[1];
+	double ratioXOverY = Double.parseDouble(args[2]);
+	String trainFilename = args[3];
+	String testFilename = args[4];
+
+	// Stages, cheapest first, each but the last with its threshold
+	String [] stages = {"BayesNet1:0.99", "CBRDist2"};
+	if (args.length > 5)
+	    stages = Arrays.copyOfRange (args, 5, args.length);
+
+	// Parse on every core
+	int threads = Runtime.getRuntime ().availableProcessors ();
+
+	// Parse train examples
+	List <Example> trainSet = null;
+	try {
+	    trainSet = Parser.readFile (trainFilename, threads);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open train set " + trainFilename);
+	    System.exit (1);
+	}
+
+	// Parse test examples
+	List <Example> testSet = null;
+	try {
+	    testSet = Parser.readFile (testFilename, threads);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open test set " + testFilename);
+	    System.exit (1);
+	}
+
+	// Train stages
+	Cascade c = new Cascade (wordX, wordY, trainSet);
+	for (int i = 0; i < stages.length; i++) {
+	    String [] spec = stages [i].split (":");
+	    if (spec.length != (i < stages.length - 1 ? 2 : 1)) {
+		System.err.println ("Every stage but the last needs a threshold, as name:threshold");
+		System.exit (1);
+	    }
+	    double threshold = spec.length == 2 ? Double.parseDouble (spec [1]) : 0;
+	    c.add (spec [0], stage (spec [0], wordX, wordY, ratioXOverY, trainSet, testSet), threshold);
+	}
+
+	// Test
+	c.runTests (testSet);
+    }
+
+    /********************************************************************************
+     *  stage - builds the classifier called @name.  Bayes nets over pos are
+     *          given count tables so each lookup is a table probe.
+     ********************************************************************************/
+    static Classifier stage (String name, String word1, String word2, double ratio,
+			     List <Example> trainSet, List <Example> testSet) {
+	if (name.equals ("CBRDist1"))
+	    return new CBRDist1 (trainSet, word1, word2);
+	if (name.equals ("CBRDist2"))
+	    return new CBRDist2 (trainSet, word1, word2);
+	if (name.equals ("CBRDist3"))
+	    return new CBRDist3 (trainSet, word1, word2);
+	if (name.equals ("HashedBayes"))
+	    return new HashedBayes (word1, word2, trainSet);
+
+	BayesNet bn = null;
+	if (name.equals ("BayesNet1"))
+	    bn = new BayesNet1 (word1, word2, ratio, trainSet, testSet);
+	else if (name.equals ("BayesNet2"))
+	    bn = new BayesNet2 (word1, word2, ratio, trainSet, testSet);
+	else
+	    throw new IllegalArgumentException ("Unknown classifier: " + name);
+	bn.exactCounts ();
+	return bn;
+    }
+
+
+    /********************************************************************************
+     *  Cascade Class
+     ********************************************************************************/
+    // Stages, cheapest first, and their names
+    List <Classifier> stages;
+    List <String> names;
+
+    // Smallest margin each stage's answer is accepted with
+    List <Double> thresholds;
+
+    // Train examples
+    List <Example> trainSet;
+
+    // words being tested
+    String word1, word2;
+
+    // c'tor
+    Cascade (String word1, String word2, List <Example> trainSet) {
+	this.word1 = word1;
+	this.word2 = word2;
+	this.trainSet = trainSet;
+	stages = new ArrayList <Classifier> ();
+	names = new ArrayList <String> ();
+	thresholds = new ArrayList <Double> ();
+    }
+
+    /********************************************************************************
+     *  add - appends a stage, more expensive than those before it, whose
+     *        answer is accepted when its margin is at least @threshold
+     *        either way (ignored for the last stage)
+     ********************************************************************************/
+    void add (String name, Classifier c, double threshold) {
+	names.add (name);
+	stages.add (c);
+	thresholds.add (threshold);
+    }
+
+
+    /********************************************************************************
+     *  guess - the answer of the first confident stage
+     ********************************************************************************/
+    public String guess (Example query) {
+	return margin (query) > 0 ? word1 : word2;
+    }
+
+    /********************************************************************************
+     *  margin - the margin of the first stage whose margin reaches the
+     *           threshold, or of the last stage
+     ********************************************************************************/
+    public double margin (Example query) {
+	double [] margins = new double [stages.size ()];
+	return margins [answer (query, margins)];
+    }
+
+    /********************************************************************************
+     *  answer - runs stages on @query until one is confident, recording each
+     *           margin in @margins, and returns the stage which answered
+     ********************************************************************************/
+    private int answer (Example query, double [] margins) {
+	int last = stages.size () - 1;
+	for (int i = 0; i < last; i++) {
+	    margins [i] = stages.get (i).margin (query);
+	    if (Math.abs (margins [i]) >= thresholds.get (i))
+		return i;
+	}
+	margins [last] = stages.get (last).margin (query);
+	return last;
+    }
+
+    /********************************************************************************
+     *  positions - union of the stages' positions
+     ********************************************************************************/
+    public int [] positions () {
+	return Positions.union (stages);
+    }
+
+    /********************************************************************************
+     *  lexical - true if any stage is
+     ********************************************************************************/
+    public boolean lexical () {
+	for (Classifier c : stages)
+	    if (c.lexical ())
+		return true;
+	return false;
+    }
+
+
+    /********************************************************************************
+     *  runTests - tests against test set and prints accuracy, throughput and
+     *             where queries were answered
+     ********************************************************************************/
+    public void runTests (List <Example> testSet) {
+
+	int noCorrect = 0;
+	int noFirstCorrect = 0;
+	int noTested = 0;
+	long [] answered = new long [stages.size ()];
+	double [] margins = new double [stages.size ()];
+
+	System.out.println ("========================================");
+	System.out.printf ("    Cascade results for %s vs. %s\n", word1, word2);
+	System.out.println ("========================================");
+
+	long start = System.nanoTime ();
+	for (Example ex: testSet) {
+	    // Skip incorrect usages
+	    if (!ex.isCorrect ())
+		continue;
+
+	    // Otherwise, test
+	    noTested++;
+	    String correct = ex.centerWord ();
+	    int stage = answer (ex, margins);
+	    answered [stage]++;
+	    if (correct.equals (margins [stage] > 0 ? word1 : word2))
+		noCorrect++;
+
+	    // The first stage always runs, so its own accuracy comes for free
+	    if (correct.equals (margins [0] > 0 ? word1 : word2))
+		noFirstCorrect++;
+	}
+	double seconds = (System.nanoTime () - start) / 1e9;
+
+	// Print results
+	System.out.println ("  Number of train examples: " + trainSet.size ());
+	System.out.println ("  Number of test examples: " + noTested);
+	for (int i = 0; i < stages.size (); i++) {
+	    String limit = i < stages.size () - 1 ? "margin >= " + thresholds.get (i) : "the rest";
+	    System.out.printf ("  Answered by %-10s %d (%.1f%%), %s\n", names.get (i) + ":",
+			       answered [i], 100.0 * answered [i] / noTested, limit);
+	}
+	System.out.printf ("  Escalated past %s: %.1f%%\n", names.get (0),
+			   100.0 * (noTested - answered [0]) / noTested);
+	System.out.printf ("  Throughput: %.1f queries/s\n", noTested / seconds);
+	System.out.printf ("  %s alone accuracy: %f\n", names.get (0), (float) noFirstCorrect / noTested);
+	System.out.printf ("  Accuracy: %f", (float) noCorrect / noTested);
+	System.out.println ("\n\n");
+    }
+}
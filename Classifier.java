@@ -0,0 +1,21 @@
+/**
+ *  Classifier - common interface for the word-choice learners (CBR and
+ *  BayesNet), so that several of them can be run over the same examples.
+ **/
+interface Classifier {
+
+    // guess - returns the best guess for the center word of @query
+    String guess (Example query);
+
+    // margin - confidence in the guess, from -1 (surely word2) to 1 (surely
+    //          word1); guess returns word1 exactly when the margin is positive
+    double margin (Example query);
+
+    // positions - the positions of @query whose part of speech the guess
+    //             depends on, in increasing order
+    int [] positions ();
+
+    // lexical - true if the guess also depends on the stem and word at
+    //           those positions
+    boolean lexical ();
+}
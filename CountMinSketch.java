@@ -0,0 +1,113 @@
+import java.util.*;
+
+/********************************************************************************
+ *   CountMinSketch - approximate counts of proposition keys in fixed memory
+ *
+ *   Each key is hashed to one cell in each of @depth rows of @width
+ *   counters.  Every row hashes the key's characters with its own seed, so
+ *   keys which collide in one row are unlikely to in another.  A key's
+ *   count is the smallest of its cells, which never undercounts;
+ *   collisions can only push it up.
+ *
+ *   Updates are conservative: only the cells at the current minimum are
+ *   raised, which keeps collisions from inflating the other cells.
+ *
+ *   Memory is width * depth ints no matter how many distinct keys are seen.
+ *
+ ********************************************************************************/
+
+class CountMinSketch implements Counts {
+
+    // Counter rows and the seed hashing into each
+    private int [][] cells;
+    private int [] seeds;
+    private int width, depth;
+
+    // Number of examples counted
+    private int total;
+
+    // c'tor
+    CountMinSketch (int width, int depth) {
+	if (width < 1 || depth < 1)
+	    throw new IllegalArgumentException ("sketch must be at least 1 x 1");
+	this.width = width;
+	this.depth = depth;
+	cells = new int [depth][width];
+	seeds = new int [depth];
+	// Fixed seeds, so runs are repeatable
+	Random r = new Random (depth * 31 + width);
+	for (int i = 0; i < depth; i++)
+	    seeds [i] = r.nextInt ();
+	total = 0;
+    }
+
+
+    /********************************************************************************
+     *  add - conservative update: raise only the cells below the new count
+     ********************************************************************************/
+    public void add (String key) {
+	int [] idx = index (key);
+	int c = estimate (idx) + 1;
+	for (int i = 0; i < depth; i++)
+	    if (cells [i][idx [i]] < c)
+		cells [i][idx [i]] = c;
+	total++;
+    }
+
+    /********************************************************************************
+     *  count - estimated count of @key; never below the true count
+     ********************************************************************************/
+    public int count (String key) {
+	return estimate (index (key));
+    }
+
+    public int total () {
+	return total;
+    }
+
+    /********************************************************************************
+     *  cells - number of counters held
+     ********************************************************************************/
+    int cells () {
+	return width * depth;
+    }
+
+
+    /********************************************************************************
+     *  index - cell of @key in each row
+     ********************************************************************************/
+    private int [] index (String key) {
+	int [] idx = new int [depth];
+	for (int i = 0; i < depth; i++)
+	    idx [i] = (hash (key, seeds [i]) & Integer.MAX_VALUE) % width;
+	return idx;
+    }
+
+    // hashes the characters of @key, starting from @seed (FNV-1a, then mix)
+    private static int hash (String key, int seed) {
+	int h = seed;
+	for (int i = 0; i < key.length (); i++) {
+	    h ^= key.charAt (i);
+	    h *= 0x01000193;
+	}
+	return mix (h);
+    }
+
+    // smallest cell over the rows
+    private int estimate (int [] idx) {
+	int min = Integer.MAX_VALUE;
+	for (int i = 0; i < depth; i++)
+	    min = Math.min (min, cells [i][idx [i]]);
+	return min;
+    }
+
+    // scrambles the bits of h (MurmurHash3 finalizer)
+    static int mix (int h) {
+	h ^= h >>> 16;
+	h *= 0x85ebca6b;
+	h ^= h >>> 13;
+	h *= 0xc2b2ae35;
+	h ^= h >>> 16;
+	return h;
+    }
+}
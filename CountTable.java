@@ -0,0 +1,108 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   CountTable - exact counts of proposition keys over a set of examples
+ *
+ *   A BayesNode with a CountTable answers probabilities by looking up a
+ *   count instead of scanning the train set.  Tables built over separate
+ *   parts of a corpus can be merged; merging is associative and
+ *   commutative, so shards may be combined in any order.
+ *
+ ********************************************************************************/
+
+class CountTable implements Counts {
+
+    // Number of examples each key allows
+    private Map <String, Integer> counts;
+
+    // Number of examples counted
+    private int total;
+
+    // c'tor
+    CountTable () {
+	counts = new HashMap <String, Integer> ();
+	total = 0;
+    }
+
+    /********************************************************************************
+     *  add - counts one example allowed by proposition @key
+     ********************************************************************************/
+    public void add (String key) {
+	Integer c = counts.get (key);
+	counts.put (key, c == null ? 1 : c + 1);
+	total++;
+    }
+
+    /********************************************************************************
+     *  count - number of counted examples allowed by @key
+     ********************************************************************************/
+    public int count (String key) {
+	Integer c = counts.get (key);
+	return c == null ? 0 : c;
+    }
+
+    /********************************************************************************
+     *  total - number of examples counted
+     ********************************************************************************/
+    public int total () {
+	return total;
+    }
+
+    /********************************************************************************
+     *  size - number of distinct keys held
+     ********************************************************************************/
+    int size () {
+	return counts.size ();
+    }
+
+    /********************************************************************************
+     *  keys - the distinct keys held
+     ********************************************************************************/
+    Set <String> keys () {
+	return counts.keySet ();
+    }
+
+    /********************************************************************************
+     *  merge - adds the counts of @other into this table
+     ********************************************************************************/
+    void merge (CountTable other) {
+	for (Map.Entry <String, Integer> e : other.counts.entrySet ()) {
+	    Integer c = counts.get (e.getKey ());
+	    counts.put (e.getKey (), c == null ? e.getValue () : c + e.getValue ());
+	}
+	total += other.total;
+    }
+
+
+    /********************************************************************************
+     *  write - writes the table as "total entries" followed by one
+     *          "count key" line per entry
+     ********************************************************************************/
+    void write (PrintWriter out) {
+	out.println (total + " " + counts.size ());
+	for (Map.Entry <String, Integer> e : counts.entrySet ())
+	    out.println (e.getValue () + " " + e.getKey ());
+    }
+
+    /********************************************************************************
+     *  read - reads a table written by write
+     ********************************************************************************/
+    static CountTable read (BufferedReader in) throws IOException {
+	CountTable t = new CountTable ();
+	String line = in.readLine ();
+	if (line == null)
+	    throw new EOFException ("missing count table");
+	String [] header = line.split (" ");
+	t.total = Integer.parseInt (header [0]);
+	int entries = Integer.parseInt (header [1]);
+	for (int i = 0; i < entries; i++) {
+	    line = in.readLine ();
+	    if (line == null)
+		throw new EOFException ("truncated count table");
+	    int sp = line.indexOf (' ');
+	    t.counts.put (line.substring (sp + 1), Integer.parseInt (line.substring (0, sp)));
+	}
+	return t;
+    }
+}
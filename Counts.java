@@ -0,0 +1,15 @@
+/**
+ *  Counts - counts of proposition keys, as used by BayesNode.probability.
+ *  CountTable counts exactly; CountMinSketch approximates in fixed memory.
+ **/
+interface Counts {
+
+    // add - counts one example allowed by proposition @key
+    void add (String key);
+
+    // count - number of counted examples allowed by @key
+    int count (String key);
+
+    // total - number of examples counted
+    int total ();
+}
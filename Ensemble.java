@@ -0,0 +1,226 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   Ensemble
+ *
+ *   This class runs several classifiers side by side and lets them vote on
+ *   the center word.  The train and test sets are parsed once and shared by
+ *   every member, and each test example is handed to all members in a
+ *   single pass.
+ *
+ *   Each member carries a weight; the word with the larger total weight
+ *   wins the vote.  Weights may be given per confusion set on the command
+ *   line, in the order CBRDist1 CBRDist2 BayesNet1 BayesNet2.
+ *
+ ********************************************************************************/
+
+class Ensemble implements Classifier {
+
+    /********************************************************************************
+     *  main - Driver class for ensemble parsing and testing
+     ********************************************************************************/
+    public static void main (String [] args) {
+
+	// Verify that the correct number of command-line arguments were passed in
+	if(args.length != 5 && args.length != 9) {
+	    System.err.println("usage: java Ensemble wordX wordY fractionXoverY fileOfTrainingCases fileOfTestPhrases [wCBR1 wCBR2 wBN1 wBN2]");
+	    System.exit(1);
+	}
+
+	// Initialize the input variables
+	String wordX = args[0];
+	String wordY = args[1];
+	double ratioXOverY = Double.parseDouble(args[2]);
+	String trainFilename = args[3];
+	String testFilename = args[4];
+
+	// Member weights (equal unless given)
+	double [] weights = {1, 1, 1, 1};
+	if (args.length == 9) {
+	    for (int i = 0; i < weights.length; i++)
+		weights [i] = Double.parseDouble (args [5 + i]);
+	}
+
+	// Parse on every core
+	int threads = Runtime.getRuntime ().availableProcessors ();
+
+	// Parse train examples
+	List <Example> trainSet = null;
+	try {
+	    trainSet = Parser.readFile (trainFilename, threads);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open train set " + trainFilename);
+	    System.exit (1);
+	}
+
+	// Parse test examples
+	List <Example> testSet = null;
+	try {
+	    testSet = Parser.readFile (testFilename, threads);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open test set " + testFilename);
+	    System.exit (1);
+	}
+
+	// Train members on the shared train set
+	Ensemble ens = new Ensemble (wordX, wordY, trainSet);
+	ens.add ("CBRDist1", new CBRDist1 (trainSet, wordX, wordY), weights [0]);
+	ens.add ("CBRDist2", new CBRDist2 (trainSet, wordX, wordY), weights [1]);
+	ens.add ("BayesNet1", new BayesNet1 (wordX, wordY, ratioXOverY, trainSet, testSet), weights [2]);
+	ens.add ("BayesNet2", new BayesNet2 (wordX, wordY, ratioXOverY, trainSet, testSet), weights [3]);
+
+	// Test members and ensemble together
+	ens.runTests (testSet);
+    }
+
+
+    /********************************************************************************
+     *  Ensemble Class
+     ********************************************************************************/
+    // Members, their names and their voting weights
+    List <Classifier> members;
+    List <String> names;
+    List <Double> weights;
+
+    // Train examples
+    List <Example> trainSet;
+
+    // words being tested
+    String word1, word2;
+
+    // c'tor
+    Ensemble (String word1, String word2, List <Example> trainSet) {
+	this.word1 = word1;
+	this.word2 = word2;
+	this.trainSet = trainSet;
+	members = new ArrayList <Classifier> ();
+	names = new ArrayList <String> ();
+	weights = new ArrayList <Double> ();
+    }
+
+    /********************************************************************************
+     *  add - adds a voting member to the ensemble
+     ********************************************************************************/
+    void add (String name, Classifier c, double weight) {
+	names.add (name);
+	members.add (c);
+	weights.add (weight);
+    }
+
+
+    /********************************************************************************
+     *  guess - returns the weighted majority of the members' guesses
+     ********************************************************************************/
+    public String guess (Example query) {
+	String [] votes = new String [members.size ()];
+	for (int i = 0; i < members.size (); i++)
+	    votes [i] = members.get (i).guess (query);
+	return vote (votes);
+    }
+
+    /********************************************************************************
+     *  margin - weight voting for word1 less weight voting for word2, as a
+     *           fraction of the total weight
+     ********************************************************************************/
+    public double margin (Example query) {
+	double margin = 0;
+	double total = 0;
+	for (int i = 0; i < members.size (); i++) {
+	    double w = weights.get (i);
+	    margin += members.get (i).guess (query).equals (word1) ? w : -w;
+	    total += w;
+	}
+	return total == 0 ? 0 : margin / total;
+    }
+
+    /********************************************************************************
+     *  positions - union of the members' positions
+     ********************************************************************************/
+    public int [] positions () {
+	return Positions.union (members);
+    }
+
+    /********************************************************************************
+     *  lexical - true if any member is
+     ********************************************************************************/
+    public boolean lexical () {
+	for (Classifier c : members)
+	    if (c.lexical ())
+		return true;
+	return false;
+    }
+
+    /********************************************************************************
+     *  vote - tallies member guesses by weight.  Ties go to word2, as they
+     *         do in the members themselves.
+     ********************************************************************************/
+    private String vote (String [] votes) {
+	double word1Score = 0;
+	double word2Score = 0;
+	for (int i = 0; i < votes.length; i++) {
+	    if (votes [i].equals (word1))
+		word1Score += weights.get (i);
+	    else
+		word2Score += weights.get (i);
+	}
+	return word1Score > word2Score ? word1 : word2;
+    }
+
+
+    /********************************************************************************
+     *  runTests - tests every member and the ensemble against the test set,
+     *             in one pass, and prints results
+     ********************************************************************************/
+    public void runTests (List <Example> testSet) {
+
+	int noTested = 0;
+	int noCorrect = 0;
+	int [] memberCorrect = new int [members.size ()];
+	List <String> failedExamples = new ArrayList <String> ();
+
+	System.out.println ("========================================");
+	System.out.printf ("    Ensemble results for %s vs. %s\n", word1, word2);
+	System.out.println ("========================================");
+
+	for (Example ex: testSet) {
+	    // Skip incorrect usages
+	    if (!ex.isCorrect ())
+		continue;
+
+	    // Otherwise, ask every member once
+	    noTested++;
+	    String correct = ex.centerWord ();
+	    String [] votes = new String [members.size ()];
+	    for (int i = 0; i < members.size (); i++) {
+		votes [i] = members.get (i).guess (ex);
+		if (correct.equals (votes [i]))
+		    memberCorrect [i]++;
+	    }
+
+	    // And update stats
+	    if (correct.equals (vote (votes))) {
+		noCorrect++;
+	    } else {
+		failedExamples.add (ex.toString ());
+	    }
+	}
+
+	// Print results
+	System.out.println ("  Number of train examples: " + trainSet.size ());
+	System.out.println ("  Number of test examples: " + noTested);
+	for (int i = 0; i < members.size (); i++)
+	    System.out.printf ("  %-10s (weight %.2f) accuracy: %f\n", names.get (i),
+			       weights.get (i), (float) memberCorrect [i] / noTested);
+	System.out.println ("  Number answered correctly: " + noCorrect);
+	System.out.println ("  Number answered incorrectly: " + (noTested - noCorrect));
+	System.out.printf ("  Accuracy: %f", (float) noCorrect / noTested);
+
+	if (failedExamples.size () > 0) {
+	    System.out.println ("\n  Failed examples:");
+	    for (int i = 0; i < failedExamples.size (); i++)
+		System.out.println (failedExamples.get (i));
+	}
+	System.out.println ("\n\n");
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.*;
+
+/********************************************************************************
+ *   FeatureHasher
+ *
+ *   This class turns an example into a SparseVector over a fixed number
+ *   of features.  Each (position, kind, value) triple, where kind is the
+ *   pos, stem or word at that position, is hashed to one of 2^bits
+ *   indices.  Its weight is the position's weight times the kind's weight.
+ *
+ *   The vector size depends only on the positions and kinds in use, never
+ *   on the vocabulary, so stems and words cost no more than pos.  Distinct
+ *   features may share an index; with enough bits this is rare.
+ *
+ *   The center word is the answer, so it is never a feature.
+ *
+ ********************************************************************************/
+
+class FeatureHasher {
+
+    // Kinds of feature at each position
+    static final int POS = 0;
+    static final int STEM = 1;
+    static final int WORD = 2;
+
+    // Position of the center word
+    static final int center = 7;
+
+    // Number of indices, a power of two
+    private int dimension;
+
+    // Weight of each position and each kind
+    private int [] positionWeight;
+    private int [] kindWeight;
+
+    // c'tor
+    FeatureHasher (int bits, int [] positionWeight, int posWeight, int stemWeight, int wordWeight) {
+	this.dimension = 1 << bits;
+	this.positionWeight = positionWeight;
+	this.kindWeight = new int [] {posWeight, stemWeight, wordWeight};
+    }
+
+    /********************************************************************************
+     *  dimension - number of distinct indices
+     ********************************************************************************/
+    int dimension () {
+	return dimension;
+    }
+
+    /********************************************************************************
+     *  positions - positions which produce any feature
+     ********************************************************************************/
+    int [] positions () {
+	int [] w = positionWeight.clone ();
+	w [center] = 0;
+	return CBR.weighted (w);
+    }
+
+
+    /********************************************************************************
+     *  features - the hashed feature vector of @ex
+     ********************************************************************************/
+    SparseVector features (Example ex) {
+	int [] idx = new int [positionWeight.length * kindWeight.length];
+	int [] w = new int [idx.length];
+	int n = 0;
+	for (int p = 0; p < positionWeight.length; p++) {
+	    if (p == center || positionWeight [p] == 0)
+		continue;
+	    Word word = ex.get (p);
+	    for (int k = 0; k < kindWeight.length; k++) {
+		if (kindWeight [k] == 0)
+		    continue;
+		idx [n] = index (p, k, value (word, k));
+		w [n] = positionWeight [p] * kindWeight [k];
+		n++;
+	    }
+	}
+	return compact (idx, w, n);
+    }
+
+    /********************************************************************************
+     *  index - the index of feature (@position, @kind, @value)
+     ********************************************************************************/
+    int index (int position, int kind, String value) {
+	int h = (position * 3 + kind) * 0x9e3779b9 ^ value.hashCode ();
+	return CountMinSketch.mix (h) & (dimension - 1);
+    }
+
+    // value - the @kind string of @w; words are compared ignoring case
+    private static String value (Word w, int kind) {
+	switch (kind) {
+	case POS:	return w.pos;
+	case STEM:	return w.stem;
+	default:	return w.word.toLowerCase ();
+	}
+    }
+
+    // compact - sorts the first @n entries by index, adding up collisions
+    private static SparseVector compact (int [] idx, int [] w, int n) {
+	long [] packed = new long [n];
+	for (int i = 0; i < n; i++)
+	    packed [i] = ((long) idx [i] << 32) | w [i];
+	Arrays.sort (packed);
+
+	int m = 0;
+	int [] index = new int [n];
+	int [] weight = new int [n];
+	for (int i = 0; i < n; i++) {
+	    int ix = (int) (packed [i] >>> 32);
+	    int wt = (int) packed [i];
+	    if (m > 0 && index [m - 1] == ix) {
+		weight [m - 1] += wt;
+	    } else {
+		index [m] = ix;
+		weight [m] = wt;
+		m++;
+	    }
+	}
+	return new SparseVector (Arrays.copyOf (index, m), Arrays.copyOf (weight, m));
+    }
+}
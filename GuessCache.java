@@ -0,0 +1,133 @@
+import java.util.*;
+
+/********************************************************************************
+ *   GuessCache
+ *
+ *   This class wraps a Classifier and remembers its answers.  Real text
+ *   repeats the same contexts around a confusion set over and over, so the
+ *   same guess is asked for many times.
+ *
+ *   A guess only depends on the parts of speech at the positions the
+ *   classifier reads (see Classifier.positions), so those make up the key.
+ *   Lexical classifiers also read stems and words there, so for them the
+ *   key holds those too.
+ *
+ *   The cache holds at most @capacity entries and drops the least recently
+ *   used one when full.  It may be shared between threads.
+ *
+ ********************************************************************************/
+
+class GuessCache implements Classifier {
+
+    // Default number of cached guesses
+    static final int CAPACITY = 4096;
+
+    // Wrapped classifier and the positions its guesses depend on
+    private Classifier classifier;
+    private int [] positions;
+
+    // Whether stems and words are part of the key
+    private boolean lexical;
+
+    // Cached guesses, in least recently used order
+    private Map <String, String> cache;
+
+    // Statistics
+    private long hits;
+    private long misses;
+
+    // c'tor
+    GuessCache (Classifier classifier) {
+	this (classifier, CAPACITY);
+    }
+
+    GuessCache (Classifier classifier, final int capacity) {
+	this.classifier = classifier;
+	this.positions = classifier.positions ();
+	this.lexical = classifier.lexical ();
+	this.cache = new LinkedHashMap <String, String> (16, 0.75f, true) {
+	    protected boolean removeEldestEntry (Map.Entry <String, String> eldest) {
+		return size () > capacity;
+	    }
+	};
+    }
+
+
+    /********************************************************************************
+     *  guess - returns the cached guess for @query's context, asking the
+     *          wrapped classifier on a miss.
+     ********************************************************************************/
+    public String guess (Example query) {
+	String key = signature (query);
+	synchronized (this) {
+	    String g = cache.get (key);
+	    if (g != null) {
+		hits++;
+		return g;
+	    }
+	    misses++;
+	}
+
+	// Compute outside the lock; a racing miss just computes it twice
+	String g = classifier.guess (query);
+	synchronized (this) {
+	    cache.put (key, g);
+	}
+	return g;
+    }
+
+    // Only guesses are cached; margins go straight to the classifier
+    public double margin (Example query) {
+	return classifier.margin (query);
+    }
+
+    public int [] positions () {
+	return positions;
+    }
+
+    public boolean lexical () {
+	return lexical;
+    }
+
+
+    /********************************************************************************
+     *  signature - the parts of speech of @query at the classifier's positions,
+     *              with stems and words if lexical
+     ********************************************************************************/
+    private String signature (Example query) {
+	StringBuilder sb = new StringBuilder ();
+	for (int i = 0; i < positions.length; i++) {
+	    Word w = query.get (positions [i]);
+	    sb.append (w.pos).append (' ');
+	    if (lexical)
+		sb.append (w.stem).append (' ').append (w.word).append (' ');
+	}
+	return sb.toString ();
+    }
+
+
+    /********************************************************************************
+     *  Statistics
+     ********************************************************************************/
+    synchronized long hits () {
+	return hits;
+    }
+
+    synchronized long misses () {
+	return misses;
+    }
+
+    synchronized double hitRate () {
+	long total = hits + misses;
+	return total == 0 ? 0 : (double) hits / total;
+    }
+
+    synchronized int size () {
+	return cache.size ();
+    }
+
+    public String toString () {
+	return String.format ("%d hits, %d misses (%.1f%%), %d cached",
+			      hits (), misses (), 100 * hitRate (), size ());
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   HashedBayes - naive Bayes over hashed features
+ *
+ *   This classifier utilizes the following concept:
+ *   Given a sentence, the center word is conditioned on the pos and
+ *   stem of each nearby word, each independently of the others.
+ *
+ *   The features are hashed into a fixed number of counters per word
+ *   (see FeatureHasher), so the model's size does not grow with the
+ *   vocabulary however many stems it sees.  Features are counted here
+ *   in plain arrays rather than by BayesNodes, so this is not a BayesNet.
+ *
+ *   Features which hash to the same index share a counter.  Each index is
+ *   counted with the weight its features add up to, the same weight the
+ *   index is scored with, so colliding features are neither lost in
+ *   training nor doubled in testing.
+ *
+ *   [3] ... [6] <- (7) -> [8] ... [11]     (pos and stem of each)
+ *
+ ********************************************************************************/
+
+class HashedBayes implements Classifier {
+
+    // Weight assignments for neighboring positions, and for the pos and
+    // stem at each
+    static final int [] weight = {0,0,0,1,1,1,1,0,1,1,1,1,0,0,0};
+    static final int posWeight = 1;
+    static final int stemWeight = 1;
+    // The word itself is left out: it is nearly always its stem, and
+    // weighting it cost 2 points on among/between and 12 on accept/except
+    static final int wordWeight = 0;
+
+    // 2^bits hashed features
+    static final int bits = 16;
+
+    // Hashes examples into features
+    private FeatureHasher hasher;
+
+    // log P(feature | word1) - log P(feature | word2), by feature index
+    private double [] featureRatio;
+
+    // log P(word1) - log P(word2)
+    private double wordRatio;
+
+    // train set
+    List <Example> trainSet;
+
+    // words being tested
+    String word1, word2;
+
+    // C'tor
+    HashedBayes (String word1, String word2, List <Example> trainSet) {
+	this.word1 = word1;
+	this.word2 = word2;
+	this.trainSet = trainSet;
+	hasher = new FeatureHasher (bits, weight, posWeight, stemWeight, wordWeight);
+
+	// Count features for each word, by weight
+	int dim = hasher.dimension ();
+	int [] count1 = new int [dim];
+	int [] count2 = new int [dim];
+	int n1 = 0;
+	int n2 = 0;
+	for (Example ex : trainSet) {
+	    SparseVector f = hasher.features (ex);
+	    int [] count;
+	    if (ex.centerWord ().equals (word1)) {
+		count = count1;
+		n1++;
+	    } else {
+		count = count2;
+		n2++;
+	    }
+	    for (int i = 0; i < f.size (); i++)
+		count [f.index [i]] += f.weight [i];
+	}
+
+	// Precompute log ratios, with add-one smoothing
+	wordRatio = Math.log (n1 + 1) - Math.log (n2 + 1);
+	featureRatio = new double [dim];
+	double norm = Math.log (n1 + 2) - Math.log (n2 + 2);
+	for (int i = 0; i < dim; i++)
+	    featureRatio [i] = Math.log (count1 [i] + 1) - Math.log (count2 [i] + 1) - norm;
+    }
+
+    /********************************************************************************
+     *  runTests - tests against test set and prints results
+     ********************************************************************************/
+    public void runTests (List <Example> testSet) {
+	BayesNet.runTests (this, word1, word2, trainSet.size (), testSet);
+    }
+
+
+    /********************************************************************************
+     *  guess - the more likely word given @query's features
+     ********************************************************************************/
+    public String guess (Example query) {
+	return logRatio (query) > 0 ? word1 : word2;
+    }
+
+    /********************************************************************************
+     *  margin - as for BayesNet
+     ********************************************************************************/
+    public double margin (Example query) {
+	return Math.tanh (logRatio (query) / 2);
+    }
+
+    // Only weighted positions are features
+    public int [] positions () {
+	return hasher.positions ();
+    }
+
+    // Stems are features too
+    public boolean lexical () {
+	return true;
+    }
+
+
+    /********************************************************************************
+     *  logRatio - sums the log ratio of each of @query's features, scaled by
+     *             the feature's weight
+     ********************************************************************************/
+    double logRatio (Example query) {
+	SparseVector f = hasher.features (query);
+	double r = wordRatio;
+	for (int i = 0; i < f.size (); i++)
+	    r += f.weight [i] * featureRatio [f.index [i]];
+	return r;
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 
 /**
@@ -12,32 +13,147 @@ public class Parser {
      *      Parses input file and returns a list of examples
      */
     public static List <Example> readFile (String filename) throws IOException {
+	return read (new Scanner (new FileReader (filename)));
+    }
+
+    /*
+     *      Parses the bytes of input file from offset @from up to @to, which
+     *      must both fall on line starts, as readFile would a file holding
+     *      only those lines.
+     */
+    public static List <Example> readFile (String filename, long from, long to) throws IOException {
+	if (to - from > Integer.MAX_VALUE)
+	    throw new IOException ("range of " + filename + " too large to read at once");
+	byte [] bytes = new byte [(int) (to - from)];
+	RandomAccessFile in = new RandomAccessFile (filename, "r");
+	try {
+	    in.seek (from);
+	    in.readFully (bytes);
+	} finally {
+	    in.close ();
+	}
+	return read (new Scanner (new String (bytes)));
+    }
+
+    /*
+     *      Parses every line of @scan
+     */
+    private static List <Example> read (Scanner scan) {
 	List <Example> examples = new ArrayList <Example> ();
-	Scanner scan = new Scanner (new FileReader (filename));
 	boolean isCorrect = true; // pos/neg examples alternate
 	while (scan.hasNext ()) {
-	    Example ex = new Example ();
-	    String line = scan.nextLine ();
-	    Scanner lscan = new Scanner (line);
-	    try {
-		for (int i = 0; i < wordsPerLine; i++) {
-		    String word = lscan.next ();
-		    lscan.next (); // consume left bracket
-		    String pos = lscan.next ();
-		    String stem = lscan.next ();
-		    lscan.next (); // consume right bracket
-		    Word w = new Word(word, pos, stem);
-		    ex.addWord (w);
+	    Example ex = parseLine (scan.nextLine ());
+	    if (ex == null)
+		continue; // may be trailing whitespace
+	    ex.setCorrect (isCorrect);
+	    examples.add (ex);
+	    isCorrect = !isCorrect;
+	}
+	return examples;
+    }
+
+    /*
+     *      Parses input file on @noThreads threads and returns the same
+     *      list of examples readFile would.
+     *
+     *      The lines are cut into chunks which are parsed independently.
+     *      A chunk cannot know its pos/neg parity until the chunks before
+     *      it have been parsed, since lines which fail do not count, so
+     *      flags are assigned afterwards from the number of examples
+     *      found ahead of each chunk.
+     */
+    public static List <Example> readFile (String filename, int noThreads) throws IOException {
+	// Reading is cheap next to parsing; gather lines first
+	final List <String> lines = new ArrayList <String> ();
+	BufferedReader in = new BufferedReader (new FileReader (filename));
+	try {
+	    String line;
+	    while ((line = in.readLine ()) != null)
+		lines.add (line);
+	} finally {
+	    in.close ();
+	}
+
+	// A few chunks per thread evens out uneven lines
+	int noChunks = Math.max (1, Math.min (lines.size (), noThreads * 4));
+	List <Future <List <Example>>> chunks = new ArrayList <Future <List <Example>>> ();
+	ExecutorService pool = Executors.newFixedThreadPool (Math.max (1, noThreads));
+	try {
+	    for (int c = 0; c < noChunks; c++) {
+		final int from = (int) ((long) lines.size () * c / noChunks);
+		final int to = (int) ((long) lines.size () * (c + 1) / noChunks);
+		chunks.add (pool.submit (new Callable <List <Example>> () {
+		    public List <Example> call () {
+			List <Example> examples = new ArrayList <Example> ();
+			for (int i = from; i < to; i++) {
+			    Example ex = parseLine (lines.get (i));
+			    if (ex != null)
+				examples.add (ex);
+			}
+			return examples;
+		    }
+		}));
+	    }
+
+	    // Merge in file order; a chunk starts positive iff an even
+	    // number of examples came before it
+	    List <Example> examples = new ArrayList <Example> ();
+	    for (Future <List <Example>> chunk : chunks) {
+		boolean isCorrect = examples.size () % 2 == 0;
+		for (Example ex : chunk.get ()) {
 		    ex.setCorrect (isCorrect);
+		    isCorrect = !isCorrect;
 		}
-		examples.add (ex);
-		isCorrect = !isCorrect;
-	    } catch (NoSuchElementException e) {
-		// may be trailing whitespace
+		examples.addAll (chunk.get ());
 	    }
+	    return examples;
+	} catch (InterruptedException e) {
+	    throw new InterruptedIOException ("interrupted parsing " + filename);
+	} catch (ExecutionException e) {
+	    throw new IOException ("unable to parse " + filename, e.getCause ());
+	} finally {
+	    pool.shutdown ();
 	}
-	return examples;
     }
 
+    /*
+     *      Parses a single line, or returns null if it does not hold a
+     *      full example.  Lines which fail do not count towards the
+     *      pos/neg alternation.
+     */
+    public static Example parseLine (String line) {
+	Example ex = new Example ();
+	Scanner lscan = new Scanner (line);
+	try {
+	    for (int i = 0; i < wordsPerLine; i++) {
+		String word = lscan.next ();
+		lscan.next (); // consume left bracket
+		String pos = lscan.next ();
+		String stem = lscan.next ();
+		lscan.next (); // consume right bracket
+		Word w = new Word(word, pos, stem);
+		ex.addWord (w);
+	    }
+	} catch (NoSuchElementException e) {
+	    return null;
+	}
+	return ex;
+    }
+
+    /*
+     *      Returns true iff parseLine would accept @line, without
+     *      building the example.
+     */
+    public static boolean isExample (String line) {
+	int tokens = 0;
+	boolean inToken = false;
+	for (int i = 0; i < line.length () && tokens < wordsPerLine * 5; i++) {
+	    boolean space = Character.isWhitespace (line.charAt (i));
+	    if (!space && !inToken)
+		tokens++;
+	    inToken = !space;
+	}
+	return tokens >= wordsPerLine * 5;
+    }
     
 }
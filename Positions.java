@@ -0,0 +1,27 @@
+import java.util.*;
+
+/**
+ *  Positions - helpers for the position lists returned by
+ *  Classifier.positions.
+ **/
+class Positions {
+
+    // sorted - the distinct values of @used, in increasing order
+    static int [] sorted (Collection <Integer> used) {
+	SortedSet <Integer> set = new TreeSet <Integer> (used);
+	int [] ret = new int [set.size ()];
+	int i = 0;
+	for (int p : set)
+	    ret [i++] = p;
+	return ret;
+    }
+
+    // union - every position read by any of @cs
+    static int [] union (List <Classifier> cs) {
+	List <Integer> used = new ArrayList <Integer> ();
+	for (Classifier c : cs)
+	    for (int p : c.positions ())
+		used.add (p);
+	return sorted (used);
+    }
+}
@@ -8,8 +8,8 @@ abstract class Proposition {
     // Identifier for variables which can take on any value
     static final String FREE = "__FREE__";
 
-    // allows - returns true if the example holds in this proposition
-    abstract boolean allows (Example ex);
+    // key - a string naming this proposition; equal keys allow the same examples
+    abstract String key ();
 }
 
 
@@ -42,27 +42,26 @@ class PosProposition extends Proposition {
 	myPos.set (i, s);
     }
     
-    // Check whether an example holds under this proposition
-    boolean allows (Example ex) {
-
-	// Center must match
-	if (!myCenter.equals (ex.centerWord ()))
-	    return false;
-
-	// Check if the query is valid
+    // Center word followed by each constrained position and its pos
+    String key () {
+	StringBuilder sb = new StringBuilder (myCenter);
 	for (int i = 0; i < 15; i++) {
 	    String pPos = myPos.get (i);
-	    String ePos = ex.get (i).pos;
-
-	    // If free, ignore
-	    if (pPos.equals (FREE))
-		continue;
+	    if (!pPos.equals (FREE))
+		sb.append (' ').append (i).append ('=').append (pPos);
+	}
+	return sb.toString ();
+    }
 
-	    // Otherwise, make sure they match
-	    if (!pPos.equals (ePos))
-		return false;
+    // Inverse of key
+    static PosProposition parse (String key) {
+	String [] parts = key.split (" ");
+	PosProposition p = new PosProposition (parts [0]);
+	for (int i = 1; i < parts.length; i++) {
+	    int eq = parts [i].indexOf ('=');
+	    p.set (Integer.parseInt (parts [i].substring (0, eq)), parts [i].substring (eq + 1));
 	}
-	return true;
+	return p;
     }
 }
 
@@ -0,0 +1,256 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   ShardTrainer
+ *
+ *   This class trains the Bayes nets in several worker processes.  The
+ *   train file is cut into byte ranges, or shards; each worker reads and
+ *   parses its own range of the file and writes a CountTable per node for
+ *   both topologies.  The parent merges
+ *   the partial tables, installs them in BayesNet1 and BayesNet2, and tests
+ *   as BayesNet.main does.
+ *
+ *   Parser alternates pos/neg over the lines it accepts, so a shard is only
+ *   cut after an even number of accepted lines.  Every shard then starts on
+ *   a positive example and parses exactly as it would in the whole file.
+ *
+ *   CBR keeps the train examples themselves rather than anything computed
+ *   from them, so there is nothing for it to shard.
+ *
+ ********************************************************************************/
+
+class ShardTrainer {
+
+    // Topologies trained by each worker
+    static final String [] nets = {"BayesNet1", "BayesNet2"};
+
+    /********************************************************************************
+     *  main - Driver class for sharded training and testing
+     ********************************************************************************/
+    public static void main (String [] args) {
+
+	// Worker processes are started through main as well
+	if (args.length == 7 && args[0].equals ("-worker")) {
+	    worker (args[1], args[2], args[3], Long.parseLong (args[4]), Long.parseLong (args[5]), args[6]);
+	    return;
+	}
+
+	// Verify that the correct number of command-line arguments were passed in
+	if(args.length != 6) {
+	    System.err.println("usage: java ShardTrainer wordX wordY fractionXoverY fileOfTrainingCases fileOfTestPhrases noShards");
+	    System.exit(1);
+	}
+
+	// Initialize the input variables
+	String wordX = args[0];
+	String wordY = args[1];
+	double ratioXOverY = Double.parseDouble(args[2]);
+	String trainFilename = args[3];
+	String testFilename = args[4];
+	int noShards = Integer.parseInt(args[5]);
+	if (noShards < 1) {
+	    System.err.println ("noShards must be at least 1");
+	    System.exit (1);
+	}
+
+	// Parse test examples
+	List <Example> testSet = null;
+	try {
+	    testSet = Parser.readFile (testFilename);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open test set " + testFilename);
+	    System.exit (1);
+	}
+
+	// Train in workers
+	List <List <CountTable>> tables = null;
+	try {
+	    tables = train (wordX, wordY, trainFilename, noShards);
+	} catch (IOException e) {
+	    System.err.println ("Sharded training failed: " + e.getMessage ());
+	    System.exit (1);
+	}
+
+	// Install merged counts and test
+	BayesNet1 bn1 = new BayesNet1 (wordX, wordY, ratioXOverY, null, testSet);
+	BayesNet2 bn2 = new BayesNet2 (wordX, wordY, ratioXOverY, null, testSet);
+	bn1.setCounts (tables.get (0));
+	bn2.setCounts (tables.get (1));
+	bn1.runTests (testSet);
+	bn2.runTests (testSet);
+    }
+
+
+    /********************************************************************************
+     *  train - cuts @trainFilename into @noShards byte ranges, counts each in
+     *          its own process, and returns the merged tables, one list per
+     *          net.
+     ********************************************************************************/
+    static List <List <CountTable>> train (String word1, String word2,
+					   String trainFilename, int noShards) throws IOException {
+	long [] cuts = split (trainFilename, noShards);
+	File dir = tempDir ();
+	List <Process> workers = new ArrayList <Process> ();
+	try {
+	    // Start one worker per range; each reads its lines straight from
+	    // the train file
+	    String java = System.getProperty ("java.home") + File.separator + "bin" + File.separator + "java";
+	    String cp = System.getProperty ("java.class.path");
+	    List <File> outputs = new ArrayList <File> ();
+	    for (int i = 0; i + 1 < cuts.length; i++) {
+		File out = new File (dir, "shard" + i + ".counts");
+		ProcessBuilder pb = new ProcessBuilder (java, "-cp", cp, "ShardTrainer", "-worker",
+							word1, word2, trainFilename,
+							"" + cuts [i], "" + cuts [i + 1], out.getPath ());
+		pb.inheritIO ();
+		workers.add (pb.start ());
+		outputs.add (out);
+	    }
+
+	    // Wait for all, then merge in shard order
+	    List <List <CountTable>> merged = null;
+	    for (int i = 0; i < workers.size (); i++) {
+		int status;
+		try {
+		    status = workers.get (i).waitFor ();
+		} catch (InterruptedException e) {
+		    throw new InterruptedIOException ("interrupted waiting for shard " + i);
+		}
+		if (status != 0)
+		    throw new IOException ("worker for shard " + i + " exited with " + status);
+
+		List <List <CountTable>> part = readCounts (outputs.get (i));
+		if (merged == null) {
+		    merged = part;
+		    continue;
+		}
+		for (int n = 0; n < nets.length; n++)
+		    for (int j = 0; j < merged.get (n).size (); j++)
+			merged.get (n).get (j).merge (part.get (n).get (j));
+	    }
+	    return merged;
+	} finally {
+	    // Stop any worker still running before removing its output
+	    for (Process p : workers)
+		p.destroy ();
+	    for (Process p : workers) {
+		try {
+		    p.waitFor ();
+		} catch (InterruptedException e) {
+		    Thread.currentThread ().interrupt ();
+		    break;
+		}
+	    }
+	    for (File f : dir.listFiles ())
+		f.delete ();
+	    dir.delete ();
+	}
+    }
+
+    /********************************************************************************
+     *  split - byte offsets cutting @filename into at most @noShards ranges
+     *          of about equal size, after an even number of examples.  The
+     *          first offset is 0 and the last is the file's length.
+     ********************************************************************************/
+    static long [] split (String filename, int noShards) throws IOException {
+
+	// Offset just past every second example, where a shard may end
+	List <Long> pairEnds = new ArrayList <Long> ();
+	InputStream in = new BufferedInputStream (new FileInputStream (filename));
+	ByteArrayOutputStream line = new ByteArrayOutputStream ();
+	long offset = 0;
+	int noExamples = 0;
+	int b;
+	do {
+	    b = in.read ();
+	    if (b >= 0) {
+		offset++;
+		if (b != '\n') {
+		    line.write (b);
+		    continue;
+		}
+	    }
+	    if (Parser.isExample (line.toString ()) && ++noExamples % 2 == 0)
+		pairEnds.add (offset);
+	    line.reset ();
+	} while (b >= 0);
+	in.close ();
+	if (noExamples == 0)
+	    throw new IOException ("no examples in train set " + filename);
+
+	// Pairs per shard, rounded up; the last shard runs to the end of the
+	// file and takes any odd example left over
+	int perShard = Math.max ((pairEnds.size () + noShards - 1) / noShards, 1);
+	List <Long> cuts = new ArrayList <Long> ();
+	cuts.add (0L);
+	for (int i = perShard - 1; i < pairEnds.size () - 1; i += perShard)
+	    cuts.add (pairEnds.get (i));
+	cuts.add (offset);
+
+	long [] ret = new long [cuts.size ()];
+	for (int i = 0; i < ret.length; i++)
+	    ret [i] = cuts.get (i);
+	return ret;
+    }
+
+
+    /********************************************************************************
+     *  worker - counts the shard from byte @from to @to and writes the
+     *           tables for every net
+     ********************************************************************************/
+    static void worker (String word1, String word2, String filename, long from, long to,
+			String outFilename) {
+	try {
+	    List <Example> shard = Parser.readFile (filename, from, to);
+	    PrintWriter out = new PrintWriter (new BufferedWriter (new FileWriter (outFilename)));
+	    BayesNet [] bns = {
+		new BayesNet1 (word1, word2, 0, shard, null),
+		new BayesNet2 (word1, word2, 0, shard, null)
+	    };
+	    for (BayesNet bn : bns) {
+		List <CountTable> tables = bn.countTables (shard);
+		out.println (tables.size ());
+		for (CountTable t : tables)
+		    t.write (out);
+	    }
+	    out.close ();
+	    if (out.checkError ())
+		throw new IOException ("error writing " + outFilename);
+	} catch (IOException e) {
+	    System.err.println ("Unable to count " + filename + " from " + from + " to " + to
+				+ ": " + e.getMessage ());
+	    System.exit (1);
+	}
+    }
+
+    /********************************************************************************
+     *  readCounts - reads the tables written by one worker
+     ********************************************************************************/
+    static List <List <CountTable>> readCounts (File f) throws IOException {
+	List <List <CountTable>> ret = new ArrayList <List <CountTable>> ();
+	BufferedReader in = new BufferedReader (new FileReader (f));
+	try {
+	    for (int n = 0; n < nets.length; n++) {
+		int size = Integer.parseInt (in.readLine ());
+		List <CountTable> tables = new ArrayList <CountTable> ();
+		for (int i = 0; i < size; i++)
+		    tables.add (CountTable.read (in));
+		ret.add (tables);
+	    }
+	} finally {
+	    in.close ();
+	}
+	return ret;
+    }
+
+    /********************************************************************************
+     *  tempDir - a fresh directory for shards and partial counts
+     ********************************************************************************/
+    static File tempDir () throws IOException {
+	File dir = File.createTempFile ("shards", "");
+	if (!dir.delete () || !dir.mkdir ())
+	    throw new IOException ("unable to create " + dir);
+	return dir;
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   SketchReport
+ *
+ *   This class compares the Bayes nets counted exactly (CountTable) with
+ *   the same nets counted by a CountMinSketch of a given width and depth.
+ *   For each topology it prints the accuracy of both, how often they agree,
+ *   and how many counters each one holds (sketch cells, plus the entries of
+ *   the small exact tables kept for nodes without parents).
+ *
+ ********************************************************************************/
+
+class SketchReport {
+
+    /********************************************************************************
+     *  main - Driver class for the exact vs. sketch comparison
+     ********************************************************************************/
+    public static void main (String [] args) {
+
+	// Verify that the correct number of command-line arguments were passed in
+	if(args.length != 7) {
+	    System.err.println("usage: java SketchReport wordX wordY fractionXoverY fileOfTrainingCases fileOfTestPhrases width depth");
+	    System.exit(1);
+	}
+
+	// Initialize the input variables
+	String wordX = args[0];
+	String wordY = args[1];
+	double ratioXOverY = Double.parseDouble(args[2]);
+	String trainFilename = args[3];
+	String testFilename = args[4];
+	int width = Integer.parseInt(args[5]);
+	int depth = Integer.parseInt(args[6]);
+
+	// Parse train examples
+	List <Example> trainSet = null;
+	try {
+	    trainSet = Parser.readFile (trainFilename);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open train set " + trainFilename);
+	    System.exit (1);
+	}
+
+	// Parse test examples
+	List <Example> testSet = null;
+	try {
+	    testSet = Parser.readFile (testFilename);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open test set " + testFilename);
+	    System.exit (1);
+	}
+
+	System.out.println ("========================================");
+	System.out.printf ("    Sketch report for %s vs. %s (%d x %d)\n", wordX, wordY, width, depth);
+	System.out.println ("========================================");
+
+	// Same topology twice: exact and sketched
+	BayesNet [][] pairs = {
+	    {new BayesNet1 (wordX, wordY, ratioXOverY, trainSet, testSet),
+	     new BayesNet1 (wordX, wordY, ratioXOverY, trainSet, testSet)},
+	    {new BayesNet2 (wordX, wordY, ratioXOverY, trainSet, testSet),
+	     new BayesNet2 (wordX, wordY, ratioXOverY, trainSet, testSet)}
+	};
+	for (BayesNet [] pair : pairs) {
+	    BayesNet exact = pair [0];
+	    BayesNet sketch = pair [1];
+	    exact.exactCounts ();
+	    sketch.sketchCounts (width, depth);
+	    report (exact, sketch, testSet);
+	}
+	System.out.println ("\n");
+    }
+
+
+    /********************************************************************************
+     *  report - tests @exact and @sketch side by side and prints results
+     ********************************************************************************/
+    static void report (BayesNet exact, BayesNet sketch, List <Example> testSet) {
+	int noTested = 0;
+	int exactCorrect = 0;
+	int sketchCorrect = 0;
+	int noAgreed = 0;
+
+	for (Example ex : testSet) {
+	    // Skip incorrect usages
+	    if (!ex.isCorrect ())
+		continue;
+
+	    noTested++;
+	    String correct = ex.centerWord ();
+	    String e = exact.guess (ex);
+	    String s = sketch.guess (ex);
+	    if (correct.equals (e))
+		exactCorrect++;
+	    if (correct.equals (s))
+		sketchCorrect++;
+	    if (e.equals (s))
+		noAgreed++;
+	}
+
+	// Memory held by each
+	int entries = 0;
+	int cells = 0;
+	for (BayesNode n : exact.bnet)
+	    entries += ((CountTable) n.counts).size ();
+	for (BayesNode n : sketch.bnet) {
+	    if (n.counts instanceof CountMinSketch)
+		cells += ((CountMinSketch) n.counts).cells ();
+	    else
+		cells += ((CountTable) n.counts).size ();
+	}
+
+	System.out.println ("  " + exact.getClass ().getName () + ":");
+	System.out.printf ("    Exact accuracy:  %f (%d table entries)\n",
+			   (float) exactCorrect / noTested, entries);
+	System.out.printf ("    Sketch accuracy: %f (%d counters)\n",
+			   (float) sketchCorrect / noTested, cells);
+	System.out.printf ("    Agreement:       %f\n", (float) noAgreed / noTested);
+    }
+}
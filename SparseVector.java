@@ -0,0 +1,36 @@
+/**
+ *  SparseVector - a feature vector holding only its non-zero entries,
+ *  as parallel arrays of indices (increasing) and weights.
+ **/
+class SparseVector {
+    final int [] index;
+    final int [] weight;
+
+    SparseVector (int [] index, int [] weight) {
+	this.index = index;
+	this.weight = weight;
+    }
+
+    // Number of non-zero entries
+    int size () {
+	return index.length;
+    }
+
+    // overlap - sum, over indices both vectors hold, of the smaller weight
+    int overlap (SparseVector other) {
+	int sum = 0;
+	int i = 0, j = 0;
+	while (i < index.length && j < other.index.length) {
+	    if (index [i] < other.index [j]) {
+		i++;
+	    } else if (index [i] > other.index [j]) {
+		j++;
+	    } else {
+		sum += Math.min (weight [i], other.weight [j]);
+		i++;
+		j++;
+	    }
+	}
+	return sum;
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.*;
+import java.io.*;
+
+/********************************************************************************
+ *   WindowStream
+ *
+ *   This class cuts examples directly out of continuous tagged text, in the
+ *   same "word [ POS STEM ]" form the train files use, but with no line
+ *   structure.  Whole tagged documents can be fed through it.
+ *
+ *   The last 15 words read are kept in a ring buffer.  Whenever the word in
+ *   the center of the buffer belongs to the confusion set, the buffer is
+ *   handed out as an Example, so only windows worth checking are built.
+ *   Words are matched ignoring case, so sentence-initial uses count too.
+ *
+ *   Each input is padded at both ends with 7 sentinel words, whose part of
+ *   speech matches nothing in training, so words near the start and end of
+ *   a document still get a window.
+ *
+ ********************************************************************************/
+
+class WindowStream {
+
+    /********************************************************************************
+     *  main - Checks tagged documents for suspicious uses of wordX / wordY
+     ********************************************************************************/
+    public static void main (String [] args) {
+
+	// Verify that the correct number of command-line arguments were passed in
+	if(args.length < 4) {
+	    System.err.println("usage: java WindowStream wordX wordY fileOfTrainingCases taggedDocument...");
+	    System.exit(1);
+	}
+
+	// Initialize the input variables
+	String wordX = args[0];
+	String wordY = args[1];
+	String trainFilename = args[2];
+
+	// Parse train examples
+	List <Example> trainSet = null;
+	try {
+	    trainSet = Parser.readFile (trainFilename);
+	} catch (IOException e) {
+	    System.err.println ("Unable to open train set " + trainFilename);
+	    System.exit (1);
+	}
+
+	// CBR1 has been the most consistent checker; documents repeat
+	// contexts, so remember its answers
+	GuessCache checker = new GuessCache (new CBRDist1 (trainSet, wordX, wordY));
+
+	// Stream each document through the checker
+	for (int i = 3; i < args.length; i++) {
+	    int noChecked = 0;
+	    int noFlagged = 0;
+	    System.out.println ("========================================");
+	    System.out.printf ("    Checking %s for %s vs. %s\n", args [i], wordX, wordY);
+	    System.out.println ("========================================");
+	    try {
+		WindowStream ws = new WindowStream (new FileReader (args [i]), wordX, wordY);
+		Example ex;
+		while ((ex = ws.next ()) != null) {
+		    noChecked++;
+		    String estimated = checker.guess (ex);
+		    if (!estimated.equalsIgnoreCase (ex.centerWord ())) {
+			noFlagged++;
+			System.out.println ("  " + estimated + "? " + ex);
+		    }
+		}
+		ws.close ();
+	    } catch (IOException e) {
+		System.err.println ("Unable to read document " + args [i]);
+		System.exit (1);
+	    }
+	    System.out.println ("  Number of windows checked: " + noChecked);
+	    System.out.println ("  Number of windows flagged: " + noFlagged);
+	    System.out.println ("\n");
+	}
+
+	// The cache is shared by every document, so report it once
+	System.out.println ("Guess cache over all documents: " + checker);
+    }
+
+
+    /********************************************************************************
+     *  WindowStream Class
+     ********************************************************************************/
+    // Size of a window, and the position of its center word
+    static final int windowSize = 15;
+    static final int center = 7;
+
+    // Sentinel which pads both ends of the input
+    static final Word PAD = new Word ("<pad>", "<pad>", "<pad>");
+
+    // Tagged input
+    private Scanner scan;
+
+    // Sentinels still to be read once the input runs out
+    private int padsLeft;
+
+    // Words which make a window worth emitting, in lower case
+    private Set <String> confusionSet;
+
+    // Ring buffer of the last windowSize words; head is the oldest
+    private Word [] ring;
+    private int head;
+    private int filled;
+
+    // c'tor
+    WindowStream (Reader in, String... words) {
+	scan = new Scanner (new BufferedReader (in));
+	confusionSet = new HashSet <String> ();
+	for (String w : words)
+	    confusionSet.add (w.toLowerCase ());
+	ring = new Word [windowSize];
+
+	// Start as if center sentinels had already been read
+	for (int i = 0; i < center; i++)
+	    ring [i] = PAD;
+	head = center;
+	filled = center;
+	padsLeft = windowSize - center - 1;
+    }
+
+
+    /********************************************************************************
+     *  next - returns the next window centered on a confusion set word,
+     *         or null once the input is exhausted.
+     ********************************************************************************/
+    public Example next () throws IOException {
+	Word w;
+	while ((w = readWord ()) != null || (padsLeft > 0 && (w = pad ()) != null)) {
+	    // Overwrite the oldest word
+	    ring [head] = w;
+	    head = (head + 1) % windowSize;
+	    if (filled < windowSize)
+		filled++;
+
+	    // Emit only full windows with an interesting center
+	    if (filled == windowSize
+		&& confusionSet.contains (ring [(head + center) % windowSize].word.toLowerCase ()))
+		return window ();
+	}
+	if (scan.ioException () != null)
+	    throw scan.ioException ();
+	return null;
+    }
+
+    /********************************************************************************
+     *  close - closes the underlying input
+     ********************************************************************************/
+    public void close () {
+	scan.close ();
+    }
+
+
+    /********************************************************************************
+     *  window - wraps the ring buffer, oldest first, as an Example.  Words are
+     *           shared, not copied.
+     ********************************************************************************/
+    private Example window () {
+	Example ex = new Example ();
+	for (int i = 0; i < windowSize; i++)
+	    ex.addWord (ring [(head + i) % windowSize]);
+	// Raw text carries no label; treat the observed usage as the answer
+	ex.setCorrect (true);
+	return ex;
+    }
+
+    // pad - the next trailing sentinel
+    private Word pad () {
+	padsLeft--;
+	return PAD;
+    }
+
+    /********************************************************************************
+     *  readWord - reads one "word [ POS STEM ]" group.  Stray tokens before a
+     *             left bracket are skipped, so a damaged group only costs
+     *             that one word.
+     ********************************************************************************/
+    private Word readWord () {
+	if (!scan.hasNext ())
+	    return null;
+	String word = scan.next ();
+	while (true) {
+	    if (!scan.hasNext ())
+		return null;
+	    String t = scan.next ();
+	    if (t.equals ("["))
+		break;
+	    word = t;
+	}
+	if (!scan.hasNext ())
+	    return null;
+	String pos = scan.next ();
+	if (!scan.hasNext ())
+	    return null;
+	String stem = scan.next ();
+	// consume right bracket
+	while (scan.hasNext () && !scan.next ().equals ("]"))
+	    ;
+	return new Word (word, pos, stem);
+    }
+}